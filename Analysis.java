@@ -20,7 +20,7 @@ import soot.toolkits.scalar.ForwardBranchedFlowAnalysis;
 import soot.util.Chain;
 
 // Implement your numerical analysis here.
-public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
+public class Analysis extends ForwardBranchedFlowAnalysis<PAWrapper> {
 
 	private static final int WIDENING_THRESHOLD = 6;
 
@@ -32,7 +32,7 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
 	public String local_ints[]; // integer local variables of the method
 	public static String reals[] = { "x" };
 	public SootClass jclass;
-	private String class_ints[]; // integer class variables where the method is defined
+	public ClassContext context; // manager and environment shared by the methods of jclass
 
 	private void recordIntLocalVars() {
 
@@ -58,61 +58,29 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
 		}
 	}
 
-	private void recordIntClassVars() {
-
-		Chain<SootField> ifields = jclass.getFields();
-
-		int count = 0;
-		Iterator<SootField> it = ifields.iterator();
-		while (it.hasNext()) {
-			SootField next = it.next();
-			if (next.getType() instanceof IntegerType)
-				count += 1;
-		}
-
-		class_ints = new String[count];
-
-		int i = 0;
-		it = ifields.iterator();
-		while (it.hasNext()) {
-			SootField next = it.next();
-			String name = next.getName();
-			if (next.getType() instanceof IntegerType)
-				class_ints[i++] = name;
-		}
-	}
-
 	/* Builds an environment with integer variables. */
 	public void buildEnvironment() {
 
 		recordIntLocalVars();
-		recordIntClassVars();
-
-		String ints[] = new String[local_ints.length + class_ints.length];
-
-		/* add local ints */
-		for (int i = 0; i < local_ints.length; i++) {
-			ints[i] = local_ints[i];
-		}
-
-		/* add class ints */
-		for (int i = 0; i < class_ints.length; i++) {
-			ints[local_ints.length + i] = class_ints[i];
-		}
-		env = new Environment(ints, reals);
+		env = context.environment(local_ints);
 	}
 
 	/* Instantiate a domain. */
 	private void instantiateDomain() {
-		man = new Polka(true);
+		man = context.man;
 	}
 
 	/* === Constructor === */
 	public Analysis(UnitGraph g, SootClass jc) {
+		this(g, new ClassContext(jc));
+	}
+
+	public Analysis(UnitGraph g, ClassContext context) {
 		super(g);
 
 		this.g = g;
-		this.jclass = jc;
+		this.jclass = context.jclass;
+		this.context = context;
 
 		buildEnvironment();
 		instantiateDomain();
@@ -130,8 +98,8 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
 	}
 
 	@Override
-	protected void flowThrough(AWrapper inWrapper, Unit op,
-			List<AWrapper> fallOutWrappers, List<AWrapper> branchOutWrappers) {
+	protected void flowThrough(PAWrapper inWrapper, Unit op,
+			List<PAWrapper> fallOutWrappers, List<PAWrapper> branchOutWrappers) {
 
 		Stmt s = (Stmt) op;
 
@@ -179,7 +147,7 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Tcons1 constraint = new Tcons1(Tcons1.EQ, new Texpr1Intern(env, ApronRhs2zero));
 
                     try {
-                        fallOutWrappers.get(0).set(inWrapper.get().meetCopy(man, constraint));
+                        fallOutWrappers.get(0).assign(inWrapper.meetCopy(constraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -213,7 +181,7 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Tcons1 constraint = new Tcons1(Tcons1.EQ, new Texpr1Intern(env, ApronRhs2zero));
 
                     try {
-                        fallOutWrappers.get(0).set(inWrapper.get().meetCopy(man, constraint));
+                        fallOutWrappers.get(0).assign(inWrapper.meetCopy(constraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -246,7 +214,7 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Texpr1BinNode ApronRhs2zero = new Texpr1BinNode(Texpr1BinNode.OP_SUB, ApronRhs, ApronLhs);
                     Tcons1 constraint = new Tcons1(Tcons1.EQ, new Texpr1Intern(env, ApronRhs2zero));
                     try {
-                        fallOutWrappers.get(0).set(inWrapper.get().meetCopy(man, constraint));
+                        fallOutWrappers.get(0).assign(inWrapper.meetCopy(constraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -288,8 +256,8 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Tcons1 branchOutConstraint = new Tcons1(Tcons1.EQ, new Texpr1Intern(env, Apron2zero));
                     Tcons1 fallOutConstraint = new Tcons1(Tcons1.EQ, new Texpr1Intern(env, ApronInvert));
                     try {
-                        fallOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, fallOutConstraint)));
-                        branchOutWrappers.set(0,  new AWrapper(inWrapper.get().meetCopy(man, branchOutConstraint)));
+                        fallOutWrappers.set(0, inWrapper.meetCopy(fallOutConstraint));
+                        branchOutWrappers.set(0,  inWrapper.meetCopy(branchOutConstraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -324,8 +292,8 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Tcons1 branchOutConstraint = new Tcons1(Tcons1.SUPEQ, new Texpr1Intern(env, Apron2zero));
                     Tcons1 fallOutConstraint = new Tcons1(Tcons1.SUPEQ, new Texpr1Intern(env, ApronInvert));
                     try {
-                        fallOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, fallOutConstraint)));
-                        branchOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, branchOutConstraint)));
+                        fallOutWrappers.set(0, inWrapper.meetCopy(fallOutConstraint));
+                        branchOutWrappers.set(0, inWrapper.meetCopy(branchOutConstraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -360,8 +328,8 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Tcons1 branchOutConstraint = new Tcons1(Tcons1.SUP, new Texpr1Intern(env, Apron2zero));
                     Tcons1 fallOutConstraint = new Tcons1(Tcons1.SUP, new Texpr1Intern(env, ApronInvert));
                     try {
-                        fallOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, fallOutConstraint)));
-                        branchOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, branchOutConstraint)));
+                        fallOutWrappers.set(0, inWrapper.meetCopy(fallOutConstraint));
+                        branchOutWrappers.set(0, inWrapper.meetCopy(branchOutConstraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -396,8 +364,8 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Tcons1 branchOutConstraint = new Tcons1(Tcons1.SUPEQ, new Texpr1Intern(env, Apron2zero));
                     Tcons1 fallOutConstraint = new Tcons1(Tcons1.SUPEQ, new Texpr1Intern(env, ApronInvert));
                     try {
-                        fallOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, fallOutConstraint)));
-                        branchOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, branchOutConstraint)));
+                        fallOutWrappers.set(0, inWrapper.meetCopy(fallOutConstraint));
+                        branchOutWrappers.set(0, inWrapper.meetCopy(branchOutConstraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -432,8 +400,8 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     Tcons1 branchOutConstraint = new Tcons1(Tcons1.SUP, new Texpr1Intern(env, Apron2zero));
                     Tcons1 fallOutConstraint = new Tcons1(Tcons1.SUP, new Texpr1Intern(env, ApronInvert));
                     try {
-                        fallOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, fallOutConstraint)));
-                        branchOutWrappers.set(0,  new AWrapper(inWrapper.get().meetCopy(man, branchOutConstraint)));
+                        fallOutWrappers.set(0, inWrapper.meetCopy(fallOutConstraint));
+                        branchOutWrappers.set(0,  inWrapper.meetCopy(branchOutConstraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -469,8 +437,8 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
                     fallOutConstraints[0] = new Tcons1(Tcons1.SUP, new Texpr1Intern(env, Apron2zero));
                     fallOutConstraints[1] = new Tcons1(Tcons1.SUP, new Texpr1Intern(env, ApronInvert));
                     try {
-                        fallOutWrappers.set(0, new AWrapper(inWrapper.get().meetCopy(man, fallOutConstraints)));
-                        branchOutWrappers.set(0,  new AWrapper(inWrapper.get().meetCopy(man, branchOutConstraint)));
+                        fallOutWrappers.set(0, inWrapper.meetCopy(fallOutConstraints));
+                        branchOutWrappers.set(0,  inWrapper.meetCopy(branchOutConstraint));
                     } catch (ApronException e) {
                         e.printStackTrace();
                     }
@@ -485,22 +453,18 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
 	}
 
 	@Override
-	protected void copy(AWrapper source, AWrapper dest) {
-		try {
-			dest.set(new Abstract1(man, source.get()));
-		} catch (ApronException e) {
-			e.printStackTrace();
-		}
+	protected void copy(PAWrapper source, PAWrapper dest) {
+		dest.assign(source);
 	}
 
 	@Override
-	protected AWrapper entryInitialFlow() {
-		Abstract1 top = null;
+	protected PAWrapper entryInitialFlow() {
+		PAWrapper top = null;
 		try {
-			top = new Abstract1(man, env);
+			top = new PAWrapper(man, context.top(env), context.bottom(env));
 		} catch (ApronException e) {
 		}
-		return new AWrapper(top);
+		return top;
 	}
 
 	private static class Counter {
@@ -512,56 +476,44 @@ public class Analysis extends ForwardBranchedFlowAnalysis<AWrapper> {
 	}
 
 	@Override
-	protected void merge(Unit succNode, AWrapper w1, AWrapper w2, AWrapper w3) {
+	protected void merge(Unit succNode, PAWrapper w1, PAWrapper w2, PAWrapper w3) {
 		Counter count = loopHeads.get(succNode);
 
-		Abstract1 a1 = w1.get();
-		Abstract1 a2 = w2.get();
-		Abstract1 a3 = null;
-
 		try {
 			if (count != null) {
 				++count.value;
 				if (count.value < WIDENING_THRESHOLD) {
-					a3 = a1.joinCopy(man, a2);
+					w3.assign(w1.joinCopy(w2));
 				} else {
-					a3 = a1.widening(man, a2);
+					w3.assign(w1.widening(w2));
 				}
 			} else {
-				a3 = a1.joinCopy(man, a2);
+				w3.assign(w1.joinCopy(w2));
 			}
-			w3.set(a3);
 		} catch (Exception e) {
 			System.out.println(e);
 		}
 	}
 
 	@Override
-	protected void merge(AWrapper src1, AWrapper src2, AWrapper trg) {
-
-		Abstract1 a1 = src1.get();
-		Abstract1 a2 = src2.get();
-		Abstract1 a3 = null;
+	protected void merge(PAWrapper src1, PAWrapper src2, PAWrapper trg) {
 
 		try {
-			a3 = a1.joinCopy(man, a2);
+			trg.assign(src1.joinCopy(src2));
 		} catch (ApronException e) {
 			e.printStackTrace();
 		}
-		trg.set(a3);
 	}
 
 	@Override
-	protected AWrapper newInitialFlow() {
-		Abstract1 bot = null;
+	protected PAWrapper newInitialFlow() {
+		PAWrapper bot = null;
 
 		try {
-			bot = new Abstract1(man, env, true);
+			bot = new PAWrapper(man, context.bottom(env), context.bottom(env));
 		} catch (ApronException e) {
 		}
-		AWrapper a = new AWrapper(bot);
-		a.man = man;
-		return a;
+		return bot;
 
 	}
 
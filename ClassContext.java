@@ -0,0 +1,98 @@
+package ch.ethz.sae;
+
+import java.util.Iterator;
+
+import apron.*;
+
+import soot.IntegerType;
+import soot.SootClass;
+import soot.SootField;
+import soot.util.Chain;
+
+/*
+ * Apron state shared by all methods of one analyzed class: the manager, the
+ * environment of the integer class variables, and the top and bottom elements
+ * of the method environment currently being analyzed.
+ */
+public class ClassContext {
+
+	public final SootClass jclass;
+	public final Manager man;
+	public final Environment classEnv;
+
+	private String class_ints[]; // integer class variables of jclass
+
+	/* cache for the last requested method environment only */
+	private Environment cachedEnv;
+	private Abstract1 top, bottom;
+
+	public ClassContext(SootClass jc) {
+		this(jc, new Polka(true));
+	}
+
+	/* man selects the numerical domain used for every method of jc. */
+	public ClassContext(SootClass jc, Manager man) {
+		this.jclass = jc;
+		this.man = man;
+
+		recordIntClassVars();
+		classEnv = new Environment(class_ints, Analysis.reals);
+	}
+
+	private void recordIntClassVars() {
+
+		Chain<SootField> ifields = jclass.getFields();
+
+		int count = 0;
+		Iterator<SootField> it = ifields.iterator();
+		while (it.hasNext()) {
+			SootField next = it.next();
+			if (next.getType() instanceof IntegerType)
+				count += 1;
+		}
+
+		class_ints = new String[count];
+
+		int i = 0;
+		it = ifields.iterator();
+		while (it.hasNext()) {
+			SootField next = it.next();
+			String name = next.getName();
+			if (next.getType() instanceof IntegerType)
+				class_ints[i++] = name;
+		}
+	}
+
+	/*
+	 * Extends the class environment with the integer locals of a method. Like
+	 * building the environment from scratch, this throws if a local has the
+	 * same name as an integer class variable.
+	 */
+	public Environment environment(String local_ints[]) {
+		return classEnv.add(local_ints, new String[0]);
+	}
+
+	/*
+	 * Returns the shared top element of e. It must be treated as read-only:
+	 * use the copying Apron operations (meetCopy, joinCopy, ...) on it.
+	 */
+	public Abstract1 top(Environment e) throws ApronException {
+		cache(e);
+		return top;
+	}
+
+	/* Returns the shared, read-only bottom element of e. */
+	public Abstract1 bottom(Environment e) throws ApronException {
+		cache(e);
+		return bottom;
+	}
+
+	/* Methods are analyzed one after the other, so one entry is enough. */
+	private void cache(Environment e) throws ApronException {
+		if (e != cachedEnv) {
+			top = new Abstract1(man, e);
+			bottom = new Abstract1(man, e, true);
+			cachedEnv = e;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package ch.ethz.sae;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import apron.*;
+
+/*
+ * Bounded trace partitioning on top of AWrapper: a set of at most
+ * MAX_DISJUNCTS abstract elements whose union is the abstract state. The
+ * inherited get() returns the join (hull) of the disjuncts, so code that only
+ * looks at a single Abstract1 stays sound.
+ *
+ * Disjuncts are never bottom. All elements (disjuncts, hull and bottom) are
+ * shared between wrappers and must be treated as immutable: only use the
+ * copying Apron operations (meetCopy, joinCopy, ...) on them.
+ */
+public class PAWrapper extends AWrapper {
+
+	public static final int MAX_DISJUNCTS = 4;
+
+	private List<Abstract1> disjuncts;
+	private Abstract1 hull; // join of the disjuncts, computed on demand
+	private Abstract1 bottom; // hull of the empty partition
+
+	public PAWrapper(Manager man, Abstract1 e, Abstract1 bottom)
+			throws ApronException {
+		super(e);
+		this.man = man;
+		this.bottom = bottom;
+		disjuncts = new ArrayList<Abstract1>();
+		if (!e.isBottom(man))
+			disjuncts.add(e);
+		hull = e;
+	}
+
+	private PAWrapper(Manager man, List<Abstract1> ds, Abstract1 bottom)
+			throws ApronException {
+		super(bottom);
+		this.man = man;
+		this.bottom = bottom;
+		disjuncts = ds;
+		reduce();
+	}
+
+	public List<Abstract1> getDisjuncts() {
+		return Collections.unmodifiableList(disjuncts);
+	}
+
+	@Override
+	public Abstract1 get() {
+		if (hull == null) {
+			hull = bottom;
+			try {
+				if (!disjuncts.isEmpty()) {
+					hull = disjuncts.get(0);
+					for (int i = 1; i < disjuncts.size(); i++)
+						hull = hull.joinCopy(man, disjuncts.get(i));
+				}
+			} catch (ApronException e) {
+				e.printStackTrace();
+			}
+			super.set(hull);
+		}
+		return hull;
+	}
+
+	/* Replaces the state by the single element e, which is not copied. */
+	@Override
+	public void set(Abstract1 e) {
+		disjuncts = new ArrayList<Abstract1>();
+		try {
+			if (!e.isBottom(man))
+				disjuncts.add(e);
+		} catch (ApronException ex) {
+			ex.printStackTrace();
+		}
+		hull = e;
+		super.set(e);
+	}
+
+	/* Makes this wrapper a copy of src; the elements themselves are shared. */
+	public void assign(PAWrapper src) {
+		disjuncts = new ArrayList<Abstract1>(src.disjuncts);
+		hull = src.hull;
+		bottom = src.bottom;
+		if (hull != null)
+			super.set(hull);
+	}
+
+	/* Meets every disjunct with cons, dropping the ones that become bottom. */
+	public PAWrapper meetCopy(Tcons1... cons) throws ApronException {
+		List<Abstract1> ds = new ArrayList<Abstract1>();
+		for (Abstract1 d : disjuncts) {
+			Abstract1 m = d.meetCopy(man, cons);
+			if (!m.isBottom(man))
+				ds.add(m);
+		}
+		return new PAWrapper(man, ds, bottom);
+	}
+
+	/* Union of both partitions, merged down to MAX_DISJUNCTS. */
+	public PAWrapper joinCopy(PAWrapper other) throws ApronException {
+		List<Abstract1> ds = new ArrayList<Abstract1>(disjuncts);
+		for (Abstract1 d : other.disjuncts)
+			ds.add(d);
+		return new PAWrapper(man, ds, bottom);
+	}
+
+	/* Widens the hulls; the result collapses to at most one disjunct. */
+	public PAWrapper widening(PAWrapper other) throws ApronException {
+		Abstract1 h1 = get();
+		Abstract1 h2 = h1.joinCopy(man, other.get());
+		Abstract1 w = h1.widening(man, h2);
+		List<Abstract1> ds = new ArrayList<Abstract1>();
+		if (!w.isBottom(man))
+			ds.add(w);
+		return new PAWrapper(man, ds, bottom);
+	}
+
+	/*
+	 * Removes subsumed disjuncts, then joins the cheapest pairs until the
+	 * bound holds. Pairs are ranked on their bounding boxes, so only the
+	 * chosen pair is actually joined. The result is an antichain: no disjunct
+	 * is included in another.
+	 */
+	private void reduce() throws ApronException {
+
+		for (int i = 0; i < disjuncts.size(); i++) {
+			for (int j = 0; j < disjuncts.size(); j++) {
+				if (i != j && disjuncts.get(i).isIncluded(man, disjuncts.get(j))) {
+					disjuncts.remove(i--);
+					break;
+				}
+			}
+		}
+
+		int n = disjuncts.size();
+		if (n <= MAX_DISJUNCTS)
+			return;
+
+		Abstract1 slots[] = disjuncts.toArray(new Abstract1[n]);
+		Interval boxes[][] = new Interval[n][];
+		int cost[][] = new int[n][n];
+		for (int i = 0; i < n; i++)
+			boxes[i] = slots[i].toBox(man);
+		for (int i = 0; i < n; i++)
+			for (int j = i + 1; j < n; j++)
+				cost[i][j] = distance(boxes[i], boxes[j]);
+
+		int live = n;
+		while (live > MAX_DISJUNCTS) {
+			int bestI = -1, bestJ = -1;
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					if (slots[i] != null && slots[j] != null
+							&& (bestI < 0 || cost[i][j] < cost[bestI][bestJ])) {
+						bestI = i;
+						bestJ = j;
+					}
+				}
+			}
+
+			Abstract1 join = slots[bestI].joinCopy(man, slots[bestJ]);
+			slots[bestI] = join;
+			slots[bestJ] = null;
+			live -= 1;
+
+			/* merging into join what it already covers loses nothing */
+			for (int k = 0; k < n; k++) {
+				if (k != bestI && slots[k] != null && slots[k].isIncluded(man, join)) {
+					slots[k] = null;
+					live -= 1;
+				}
+			}
+
+			boxes[bestI] = join.toBox(man);
+			for (int k = 0; k < n; k++) {
+				if (k < bestI && slots[k] != null)
+					cost[k][bestI] = distance(boxes[k], boxes[bestI]);
+				else if (k > bestI && slots[k] != null)
+					cost[bestI][k] = distance(boxes[bestI], boxes[k]);
+			}
+		}
+
+		disjuncts = new ArrayList<Abstract1>();
+		for (Abstract1 d : slots) {
+			if (d != null)
+				disjuncts.add(d);
+		}
+	}
+
+	/*
+	 * Cheap proxy for the precision lost by joining two disjuncts: per
+	 * variable, 2 if their intervals are disjoint, 1 if they overlap but
+	 * neither contains the other, 0 if one contains the other.
+	 */
+	private static int distance(Interval a[], Interval b[]) {
+		int d = 0;
+		for (int v = 0; v < a.length; v++) {
+			if (a[v].inf().cmp(b[v].sup()) > 0 || b[v].inf().cmp(a[v].sup()) > 0)
+				d += 2;
+			else if (!contains(a[v], b[v]) && !contains(b[v], a[v]))
+				d += 1;
+		}
+		return d;
+	}
+
+	private static boolean contains(Interval big, Interval small) {
+		return big.inf().cmp(small.inf()) <= 0 && small.sup().cmp(big.sup()) <= 0;
+	}
+
+	/* Equal iff every disjunct of one side is included in a disjunct of the other. */
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof PAWrapper))
+			return false;
+		PAWrapper other = (PAWrapper) o;
+		try {
+			return covers(other.disjuncts, disjuncts)
+					&& covers(disjuncts, other.disjuncts);
+		} catch (ApronException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	/*
+	 * Partitions are antichains (see reduce(); set() and the public
+	 * constructor hold at most one disjunct), so mutual covering pairs the
+	 * disjuncts one to one and equal partitions have the same size.
+	 */
+	@Override
+	public int hashCode() {
+		return disjuncts.size();
+	}
+
+	private boolean covers(List<Abstract1> big, List<Abstract1> small)
+			throws ApronException {
+		for (Abstract1 s : small) {
+			boolean included = false;
+			for (Abstract1 b : big) {
+				if (s.isIncluded(man, b)) {
+					included = true;
+					break;
+				}
+			}
+			if (!included)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return disjuncts.toString();
+	}
+}
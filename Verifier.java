@@ -2,6 +2,8 @@ package ch.ethz.sae;
 
 import java.util.HashMap;
 
+import apron.Octagon;
+
 import soot.jimple.spark.SparkTransformer;
 import soot.jimple.spark.pag.PAG;
 import soot.Scene;
@@ -24,13 +26,16 @@ public class Verifier {
         int weldAtFlag = 1;
         int weldBetweenFlag = 1;
 
+        // cheaper than polyhedra; PAWrapper keeps the branch correlations
+        ClassContext context = new ClassContext(c, new Octagon());
+
         for (SootMethod method : c.getMethods()) {
 
             if (method.getName().contains("<init>")) {
                 // skip constructor of the class
                 continue;
             }
-            Analysis analysis = new Analysis(new BriefUnitGraph(method.retrieveActiveBody()), c);
+            Analysis analysis = new Analysis(new BriefUnitGraph(method.retrieveActiveBody()), context);
             analysis.run();
             
             if (!verifyWeldAt(method, analysis, pointsToAnalysis)) {